@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+
+/**
+ * Runs the processors as the framework would, so benchmarks include their own client setup, connection pool, metrics and session handling
+ */
+final class BenchmarkRunners {
+
+    static final String USERNAME = "bench";
+    static final String PASSWORD = "bench";
+
+    private BenchmarkRunners() {
+    }
+
+    /**
+     * Creates a runner for the processor, configured for a plain test server. Further properties can be set before it is scheduled.
+     */
+    static TestRunner create(Class<? extends AbstractWebDAVProcessor> processor, String url, boolean authenticate, boolean acceptCompression) {
+        TestRunner runner = TestRunners.newTestRunner(processor);
+        runner.setProperty(AbstractWebDAVProcessor.URL, url);
+        runner.setProperty(AbstractWebDAVProcessor.ACCEPT_COMPRESSION, String.valueOf(acceptCompression));
+        if (authenticate) {
+            runner.setProperty(AbstractWebDAVProcessor.USERNAME, USERNAME);
+            runner.setProperty(AbstractWebDAVProcessor.PASSWORD, PASSWORD);
+        }
+        return runner;
+    }
+
+    /**
+     * Schedules the processor, which builds its client and connection pool. The mock framework triggers it once as well, which FetchWebDAV and PutWebDAV skip with an empty queue, and which warms up ListWebDAV.
+     */
+    static TestRunner schedule(TestRunner runner) {
+        runner.run(1, false, true);
+        runner.clearTransferState();
+        runner.clearProvenanceEvents();
+        return runner;
+    }
+
+    /**
+     * Triggers the processor once and discards what it produced, so memory use stays flat across invocations
+     */
+    static void trigger(TestRunner runner) {
+        runner.run(1, false, false);
+        runner.assertTransferCount(AbstractWebDAVProcessor.RELATIONSHIP_FAILURE, 0);
+        runner.clearTransferState();
+        runner.clearProvenanceEvents();
+    }
+
+    /**
+     * Stops the processor as the framework would when it is unscheduled, shutting down its connection pool. The mock framework can only do this after another trigger.
+     */
+    static void stop(TestRunner runner) {
+        ((AbstractWebDAVProcessor) runner.getProcessor()).shutdown();
+    }
+}
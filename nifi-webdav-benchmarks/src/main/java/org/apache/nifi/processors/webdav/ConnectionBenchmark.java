@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.util.TestRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-FlowFile overhead of FetchWebDAV and PutWebDAV from authentication, which every FlowFile's new client repeats (FetchWebDAV answers a challenge, PutWebDAV sends Basic
+ * credentials up front), and from opening a connection per request when keep-alive is disabled
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean authenticate;
+
+    @Param({ "true", "false" })
+    public boolean keepAlive;
+
+    @Param({ "0", "5" })
+    public long latencyMillis;
+
+    private WebDAVTestServer server;
+    private TestRunner fetchRunner;
+    private TestRunner putRunner;
+    private byte[] content;
+    private Map<String, String> fetchAttributes;
+    private Map<String, String> putAttributes;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new WebDAVTestServer().start();
+        server.setLatency(latencyMillis);
+        if (authenticate) {
+            server.setCredentials(BenchmarkRunners.USERNAME, BenchmarkRunners.PASSWORD);
+        }
+        content = "small".getBytes(StandardCharsets.UTF_8);
+        server.addCollection("/connection");
+        server.addFile("/connection/small.txt", content, "text/plain", System.currentTimeMillis());
+        fetchAttributes = Collections.singletonMap("path", server.getUrl("/connection/small.txt"));
+        putAttributes = Collections.singletonMap("mime.type", "text/plain");
+
+        // read by the client builder when the processor is scheduled
+        System.setProperty("http.keepAlive", String.valueOf(keepAlive));
+        fetchRunner = BenchmarkRunners.create(FetchWebDAV.class, server.getUrl("/connection/"), authenticate, true);
+        fetchRunner.setProperty("Get All Properties", "false");
+        BenchmarkRunners.schedule(fetchRunner);
+
+        putRunner = BenchmarkRunners.create(PutWebDAV.class, server.getUrl("/connection/put.txt"), authenticate, true);
+        BenchmarkRunners.schedule(putRunner);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkRunners.stop(fetchRunner);
+        BenchmarkRunners.stop(putRunner);
+        System.clearProperty("http.keepAlive");
+        server.close();
+    }
+
+    @Benchmark
+    public void fetch() {
+        fetchRunner.enqueue(new byte[0], fetchAttributes);
+        BenchmarkRunners.trigger(fetchRunner);
+    }
+
+    @Benchmark
+    public void put() {
+        putRunner.enqueue(content, putAttributes);
+        BenchmarkRunners.trigger(putRunner);
+    }
+}
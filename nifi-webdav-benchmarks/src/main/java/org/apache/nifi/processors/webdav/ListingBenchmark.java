@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.processors.webdav.WebDAVTestServer.Resource;
+import org.apache.nifi.util.TestRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.sardine.DavResource;
+import com.github.sardine.model.Multistatus;
+import com.github.sardine.model.Response;
+import com.github.sardine.util.SardineUtil;
+
+/**
+ * Cost of a ListWebDAV listing, both parsing an in-memory multistatus document and a full run of the processor against the test server, including creating a FlowFile
+ * per entry
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class ListingBenchmark {
+
+    private static final long MODIFIED = 1460000000000L;
+
+    @Param({ "10000", "100000", "1000000" })
+    public int entries;
+
+    @Param({ "false", "true" })
+    public boolean compress;
+
+    private byte[] multistatus;
+    private WebDAVTestServer server;
+    private TestRunner runner;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new WebDAVTestServer().start();
+        server.setCompressResponses(compress);
+
+        List<Resource> resources = new ArrayList<>(entries + 1);
+        resources.add(new Resource("/listing", null, null, MODIFIED, MODIFIED));
+        byte[] content = new byte[0];
+        for (int i = 0; i < entries; i++) {
+            Resource resource = new Resource("/listing/file-" + i + ".csv", content, "text/csv", MODIFIED - i, MODIFIED - i);
+            resources.add(resource);
+            server.addResource(resource);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WebDAVTestServer.writeMultistatus(out, resources);
+        multistatus = out.toByteArray();
+
+        runner = BenchmarkRunners.schedule(BenchmarkRunners.create(ListWebDAV.class, server.getUrl("/listing/"), false, compress));
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkRunners.stop(runner);
+        server.close();
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) throws IOException, URISyntaxException {
+        Multistatus parsed = SardineUtil.unmarshal(new ByteArrayInputStream(multistatus));
+        for (Response response : parsed.getResponse()) {
+            blackhole.consume(new DavResource(response));
+        }
+    }
+
+    @Benchmark
+    public void list() throws IOException {
+        // forget the newest modified date so every entry is listed again
+        runner.getStateManager().clear(org.apache.nifi.components.state.Scope.CLUSTER);
+        BenchmarkRunners.trigger(runner);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.util.TestRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * FetchWebDAV and PutWebDAV throughput for small and large files, with and without compression on the wire, including writing and reading FlowFile content
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TransferBenchmark {
+
+    @Param({ "1024", "16777216" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean compress;
+
+    private WebDAVTestServer server;
+    private TestRunner fetchRunner;
+    private TestRunner putRunner;
+    private byte[] content;
+    private Map<String, String> fetchAttributes;
+    private Map<String, String> putAttributes;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new WebDAVTestServer().start();
+        server.setCompressResponses(compress);
+
+        // CSV-like text, so compression behaves as it would for typical fetched content
+        content = new byte[size];
+        byte[] line = "2016-04-07T03:33:20Z,sensor-0042,21.75,ok\n".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < size; i++) {
+            content[i] = line[i % line.length];
+        }
+        server.addCollection("/transfer");
+        server.addFile("/transfer/fetch.csv", content, "text/csv", System.currentTimeMillis());
+        fetchAttributes = Collections.singletonMap("path", server.getUrl("/transfer/fetch.csv"));
+        putAttributes = Collections.singletonMap("mime.type", "text/csv");
+
+        fetchRunner = BenchmarkRunners.create(FetchWebDAV.class, server.getUrl("/transfer/"), false, compress);
+        fetchRunner.setProperty("Get All Properties", "false");
+        BenchmarkRunners.schedule(fetchRunner);
+
+        putRunner = BenchmarkRunners.create(PutWebDAV.class, server.getUrl("/transfer/put.csv"), false, compress);
+        putRunner.setProperty(PutWebDAV.CONTENT_ENCODING, compress ? CompressingInputStreams.GZIP : "none");
+        BenchmarkRunners.schedule(putRunner);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkRunners.stop(fetchRunner);
+        BenchmarkRunners.stop(putRunner);
+        server.close();
+    }
+
+    @Benchmark
+    public void fetch() {
+        fetchRunner.enqueue(new byte[0], fetchAttributes);
+        BenchmarkRunners.trigger(fetchRunner);
+    }
+
+    @Benchmark
+    public void put() {
+        putRunner.enqueue(content, putAttributes);
+        BenchmarkRunners.trigger(putRunner);
+    }
+}
@@ -2,6 +2,7 @@ package org.apache.nifi.processors.webdav;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -12,7 +13,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.ssl.SSLContext;
 
 import org.apache.http.HttpHost;
@@ -20,21 +25,29 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.NTCredentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.protocol.RequestAcceptEncoding;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultHttpRequestRetryHandler;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.client.ProxyAuthenticationStrategy;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.ssl.SSLContextBuilder;
 import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
 import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.components.Validator;
 import org.apache.nifi.processor.AbstractProcessor;
 import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.Relationship;
 import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.ssl.SSLContextService;
 import org.apache.nifi.util.NiFiProperties;
 
-import com.github.sardine.Sardine;
 import com.github.sardine.impl.SardineImpl;
 
 public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
@@ -42,7 +55,8 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
     public static final Relationship RELATIONSHIP_SUCCESS = new Relationship.Builder().name("success").description("Relationship for successfully received FlowFiles").build();
     public static final Relationship RELATIONSHIP_FAILURE = new Relationship.Builder().name("failure").description("Relationship for failed FlowFiles").build();
 
-    public static final PropertyDescriptor URL = new PropertyDescriptor.Builder().name("URL").description("A resource URL on a WebDAV server").required(true).expressionLanguageSupported(true).build();
+    public static final PropertyDescriptor URL = new PropertyDescriptor.Builder().name("URL").description("A resource URL on a WebDAV server").required(true).expressionLanguageSupported(true)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR).build();
 
     public static final PropertyDescriptor SSL_CONTEXT_SERVICE = new PropertyDescriptor.Builder().name("SSL Context Service")
             .description("The Controller Service to use in order to obtain an SSL Context").required(false).identifiesControllerService(SSLContextService.class).build();
@@ -65,6 +79,14 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
     public static final PropertyDescriptor NTLM_PROXY_AUTH = new PropertyDescriptor.Builder().name("Proxy NTLM Authentication").description("Use NTLM authentication for proxy connection")
             .addValidator(StandardValidators.BOOLEAN_VALIDATOR).required(false).expressionLanguageSupported(true).allowableValues("true", "false").defaultValue("false").build();
 
+    public static final PropertyDescriptor ACCEPT_COMPRESSION = new PropertyDescriptor.Builder().name("Accept Compressed Responses")
+            .description("Advertise brotli, gzip and deflate support with Accept-Encoding and decode compressed responses as they are streamed").addValidator(StandardValidators.BOOLEAN_VALIDATOR)
+            .required(true).allowableValues("true", "false").defaultValue("true").build();
+
+    public static final PropertyDescriptor SLOW_REQUEST_THRESHOLD = new PropertyDescriptor.Builder().name("Slow Request Threshold")
+            .description("Requests taking longer than this to respond are counted as slow, and the slowest is reported in a bulletin").addValidator(StandardValidators.TIME_PERIOD_VALIDATOR)
+            .required(true).defaultValue("10 sec").build();
+
     private final static List<PropertyDescriptor> properties;
     private final static Set<Relationship> relationships;
 
@@ -79,6 +101,8 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
         _properties.add(USERNAME);
         _properties.add(PASSWORD);
         _properties.add(NTLM_AUTH);
+        _properties.add(ACCEPT_COMPRESSION);
+        _properties.add(SLOW_REQUEST_THRESHOLD);
         
         _properties.add(PROXY_HOST);
         _properties.add(PROXY_PORT);
@@ -104,22 +128,52 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
         return properties;
     }
 
+    protected final WebDAVMetrics metrics = new WebDAVMetrics();
+
     private HttpClientBuilder clientBuilder;
+    private ResponseContentDecoding contentDecoding;
+    private InstrumentedConnectionManager connectionManager;
+    private ObjectName metricsName;
 
     @OnScheduled
-    protected void init(ProcessContext context) throws GeneralSecurityException, IOException {
+    public void init(ProcessContext context) throws GeneralSecurityException, IOException {
         clientBuilder = HttpClientBuilder.create();
+        metrics.setSlowRequestThreshold(context.getProperty(SLOW_REQUEST_THRESHOLD).asTimePeriod(TimeUnit.NANOSECONDS));
 
         // if we're using NTLM we have to do this by flow file because it required the hostname for the resource.
-        if (!context.getProperty(NTLM_AUTH).asBoolean()) {
+        if (!context.getProperty(NTLM_AUTH).evaluateAttributeExpressions().asBoolean()) {
             String username = context.getProperty(USERNAME).evaluateAttributeExpressions().getValue();
             String password = context.getProperty(PASSWORD).evaluateAttributeExpressions().getValue();
-            credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+            if (username != null) {
+                credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+            }
         }
 
         clientBuilder.useSystemProperties();
         clientBuilder.setDefaultCredentialsProvider(credentialsProvider);
 
+        // time every request sent, including auth challenges and retries
+        clientBuilder.setRequestExecutor(new InstrumentedRequestExecutor(metrics));
+        clientBuilder.setRetryHandler(new DefaultHttpRequestRetryHandler() {
+            @Override
+            public boolean retryRequest(IOException exception, int executionCount, HttpContext context) {
+                boolean retry = super.retryRequest(exception, executionCount, context);
+                if (retry) {
+                    metrics.increment(WebDAVMetrics.Counter.RETRIES);
+                }
+                return retry;
+            }
+        });
+
+        // replace the default gzip/deflate handling with our own so brotli is accepted and GET bodies can be left compressed
+        clientBuilder.disableContentCompression();
+        contentDecoding = null;
+        if (context.getProperty(ACCEPT_COMPRESSION).asBoolean()) {
+            contentDecoding = new ResponseContentDecoding(decompressContent(context));
+            clientBuilder.addInterceptorLast(new RequestAcceptEncoding(contentDecoding.getAcceptedEncodings()));
+            clientBuilder.addInterceptorLast(contentDecoding);
+        }
+
         // add proxy bits
         String proxyHost = context.getProperty(PROXY_HOST).evaluateAttributeExpressions().getValue();
         if (proxyHost != null) {
@@ -131,7 +185,7 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
 
             if (proxyUser != null) {
                 clientBuilder.setProxyAuthenticationStrategy(new ProxyAuthenticationStrategy());
-                if (context.getProperty(NTLM_PROXY_AUTH).asBoolean()) {
+                if (context.getProperty(NTLM_PROXY_AUTH).evaluateAttributeExpressions().asBoolean()) {
                     NTCredentials proxyCreds = new NTCredentials(proxyUser, proxyPass, InetAddress.getLocalHost().getHostName(), domain(proxyHost));
                     credentialsProvider.setCredentials(new AuthScope(proxyHttpHost), proxyCreds);
                 } else {
@@ -145,6 +199,7 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
         SSLContextService sslContextService = (SSLContextService) context.getProperty(SSL_CONTEXT_SERVICE).asControllerService();
 
         // add ssl support
+        SSLConnectionSocketFactory sslSocketFactory = SSLConnectionSocketFactory.getSystemSocketFactory();
         if (sslContextService != null) {
             final boolean needClientAuth = sslContextService == null ? false : sslContextService.getTrustStoreFile() != null;
             final String keystorePath = sslContextService == null ? null : sslContextService.getKeyStoreFile();
@@ -159,11 +214,100 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
             }
             final SSLContext sslContext = sslContextBuilder.build();
 
-            clientBuilder.setSslcontext(sslContext);
+            sslSocketFactory = new SSLConnectionSocketFactory(sslContext);
+        }
+
+        // one instrumented pool shared by every client built for this processor, so lease and connect times can be measured and connections reused
+        shutdownConnectionManager();
+        connectionManager = new InstrumentedConnectionManager(RegistryBuilder.<ConnectionSocketFactory> create()
+                .register("http", PlainConnectionSocketFactory.getSocketFactory())
+                .register("https", sslSocketFactory)
+                .build(), metrics);
+        if ("true".equalsIgnoreCase(System.getProperty("http.keepAlive", "true"))) {
+            int maxConnections = Integer.parseInt(System.getProperty("http.maxConnections", "5"));
+            connectionManager.setDefaultMaxPerRoute(maxConnections);
+            connectionManager.setMaxTotal(2 * maxConnections);
+        }
+        clientBuilder.setConnectionManager(connectionManager);
+        clientBuilder.setConnectionManagerShared(true);
+
+        registerMetrics();
+    }
+
+    @OnStopped
+    public void shutdown() {
+        shutdownConnectionManager();
+        unregisterMetrics();
+    }
+
+    private void shutdownConnectionManager() {
+        if (connectionManager != null) {
+            connectionManager.shutdown();
+            connectionManager = null;
+        }
+    }
+
+    private void registerMetrics() {
+        unregisterMetrics();
+        try {
+            ObjectName name = new ObjectName("org.apache.nifi.processors.webdav:type=" + getClass().getSimpleName() + ",id=" + ObjectName.quote(getIdentifier()));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, name);
+            metricsName = name;
+        } catch (JMException e) {
+            getLogger().warn("Failed to register WebDAV metrics with JMX", e);
+        }
+    }
+
+    private void unregisterMetrics() {
+        if (metricsName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(metricsName)) {
+                server.unregisterMBean(metricsName);
+            }
+        } catch (JMException e) {
+            getLogger().warn("Failed to unregister WebDAV metrics from JMX", e);
         }
+        metricsName = null;
+    }
+
+    /**
+     * Adds everything recorded since the last report to the NiFi counters, and raises a bulletin for the slowest request over the threshold
+     * 
+     * @param session
+     */
+    protected void reportMetrics(ProcessSession session) {
+        metrics.adjustCounters(session);
+        String slowest = metrics.takeSlowestRequest();
+        if (slowest != null) {
+            getLogger().warn("Slow WebDAV request: {}", new Object[] { slowest });
+        }
+    }
+
+    public WebDAVMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Whether compressed GET responses should be decoded before being handed to the processor. Listings are always decoded.
+     * 
+     * @param context
+     * @return true to decode GET responses
+     */
+    protected boolean decompressContent(ProcessContext context) {
+        return true;
+    }
+
+    /**
+     * @return the Content-Encoding of the last GET response on this thread that was left compressed, or null
+     */
+    protected String getContentEncoding() {
+        return contentDecoding == null ? null : contentDecoding.getContentEncoding();
     }
 
-    protected Sardine buildSardine(ProcessContext context) {
+    protected SardineImpl buildSardine(ProcessContext context) {
         return new SardineImpl(clientBuilder);
     }
 
@@ -197,7 +341,7 @@ public abstract class AbstractWebDAVProcessor extends AbstractProcessor {
      * @throws URISyntaxException
      */
     protected void addAuth(ProcessContext context, String url) {
-        if (context.getProperty(NTLM_AUTH).asBoolean()) {
+        if (context.getProperty(NTLM_AUTH).evaluateAttributeExpressions().asBoolean()) {
             URI uri;
             try {
                 uri = new URI(url);
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Wraps a stream so that reading from it yields compressed content, allowing request bodies to be compressed without buffering them.
+ */
+final class CompressingInputStreams {
+
+    static final String GZIP = "gzip";
+    static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    private CompressingInputStreams() {
+    }
+
+    static InputStream compress(String encoding, InputStream in) {
+        if (GZIP.equals(encoding)) {
+            return gzip(in);
+        } else if (DEFLATE.equals(encoding)) {
+            return new DeflaterInputStream(in);
+        }
+        throw new IllegalArgumentException("Unsupported content encoding " + encoding);
+    }
+
+    /**
+     * gzip is a raw deflate stream between a fixed header and a trailer holding the CRC and length of the input, so the trailer can only be produced once the input is exhausted.
+     */
+    static InputStream gzip(InputStream in) {
+        final CRC32 crc = new CRC32();
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        final InputStream body = new DeflaterInputStream(new CheckedInputStream(in, crc), deflater);
+        return new SequenceInputStream(Collections.enumeration(Arrays.asList(new ByteArrayInputStream(GZIP_HEADER), body, new GzipTrailer(crc, deflater))));
+    }
+
+    private static final class GzipTrailer extends InputStream {
+        private final CRC32 crc;
+        private final Deflater deflater;
+        private ByteArrayInputStream trailer;
+
+        GzipTrailer(CRC32 crc, Deflater deflater) {
+            this.crc = crc;
+            this.deflater = deflater;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return trailer().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return trailer().read(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+        }
+
+        private ByteArrayInputStream trailer() {
+            if (trailer == null) {
+                byte[] bytes = new byte[8];
+                writeInt(bytes, 0, crc.getValue());
+                writeInt(bytes, 4, deflater.getBytesRead());
+                trailer = new ByteArrayInputStream(bytes);
+            }
+            return trailer;
+        }
+
+        private static void writeInt(byte[] bytes, int offset, long value) {
+            for (int i = 0; i < 4; i++) {
+                bytes[offset + i] = (byte) (value >>> (8 * i));
+            }
+        }
+    }
+}
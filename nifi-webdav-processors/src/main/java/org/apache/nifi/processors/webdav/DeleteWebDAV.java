@@ -45,11 +45,14 @@ public class DeleteWebDAV extends AbstractWebDAVProcessor {
             final Sardine sardine = buildSardine(context);
 
             sardine.delete(url);
+            metrics.increment(WebDAVMetrics.Counter.FILES_DELETED);
             session.transfer(flowFile, RELATIONSHIP_SUCCESS);
         } catch (IOException e) {
             getLogger().error("Failed to delete WebDAV resource", e);
             flowFile = session.penalize(flowFile);
             session.transfer(flowFile, RELATIONSHIP_FAILURE);
+        } finally {
+            reportMetrics(session);
         }
     }
 }
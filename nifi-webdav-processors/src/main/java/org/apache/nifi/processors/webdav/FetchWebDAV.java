@@ -16,6 +16,7 @@
  */
 package org.apache.nifi.processors.webdav;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -49,12 +50,15 @@ import com.github.sardine.Sardine;
 @CapabilityDescription("Fetches content from a WebDAV resource")
 @SeeAlso({ ListWebDAV.class })
 @ReadsAttributes({ @ReadsAttribute(attribute = "filename", description = "Filename of resource"), @ReadsAttribute(attribute = "path", description = "Path of resource") })
-@WritesAttributes({ @WritesAttribute(attribute = "", description = "") })
+@WritesAttributes({ @WritesAttribute(attribute = "content.encoding", description = "Content-Encoding of the content when the response is left compressed") })
 @InputRequirement(Requirement.INPUT_REQUIRED)
 public class FetchWebDAV extends AbstractWebDAVProcessor {
 
     private static final PropertyDescriptor GET_ALL_PROPS = new PropertyDescriptor.Builder().name("Get All Properties").description("Whether to fetch all properties for the resource").required(true)
             .addValidator(StandardValidators.BOOLEAN_VALIDATOR).expressionLanguageSupported(true).build();
+    public static final PropertyDescriptor DECOMPRESS_CONTENT = new PropertyDescriptor.Builder().name("Decompress Content")
+            .description("Whether to decode compressed responses. If false only gzip is accepted, so the content can be decompressed later in the flow, and it is written exactly as received with the content.encoding attribute recording how it is compressed")
+            .addValidator(StandardValidators.BOOLEAN_VALIDATOR).required(true).allowableValues("true", "false").defaultValue("true").build();
 
     private final static List<PropertyDescriptor> properties;
     private final static Set<Relationship> relationships;
@@ -68,6 +72,9 @@ public class FetchWebDAV extends AbstractWebDAVProcessor {
         _properties.add(USERNAME);
         _properties.add(PASSWORD);
         _properties.add(NTLM_AUTH);
+        _properties.add(ACCEPT_COMPRESSION);
+        _properties.add(DECOMPRESS_CONTENT);
+        _properties.add(SLOW_REQUEST_THRESHOLD);
         
         _properties.add(PROXY_HOST);
         _properties.add(PROXY_PORT);
@@ -92,6 +99,11 @@ public class FetchWebDAV extends AbstractWebDAVProcessor {
         return properties;
     }
 
+    @Override
+    protected boolean decompressContent(ProcessContext context) {
+        return context.getProperty(DECOMPRESS_CONTENT).asBoolean();
+    }
+
     @Override
     public void onTrigger(final ProcessContext context, final ProcessSession session) throws ProcessException {
         FlowFile flowFile = session.get();
@@ -117,7 +129,22 @@ public class FetchWebDAV extends AbstractWebDAVProcessor {
                     }
                     flowFile = session.putAllAttributes(flowFile, attributes);
                 }
-                flowFile = session.importFrom(sardine.get(url), flowFile);
+                // reading to the end of the body hands the connection back to the pool, whereas closing a body of unknown length makes Sardine abort it, so only close when the read fails
+                InputStream in = sardine.get(url);
+                boolean complete = false;
+                try {
+                    flowFile = session.importFrom(in, flowFile);
+                    complete = in.read() == -1;
+                } finally {
+                    if (!complete) {
+                        in.close();
+                    }
+                }
+                metrics.increment(WebDAVMetrics.Counter.FILES_RECEIVED);
+                String contentEncoding = getContentEncoding();
+                if (contentEncoding != null) {
+                    flowFile = session.putAttribute(flowFile, "content.encoding", contentEncoding);
+                }
                 session.transfer(flowFile, RELATIONSHIP_SUCCESS);
             } catch (Exception e1) {
                 getLogger().error("Error processing FlowFile", e1);
@@ -127,6 +154,8 @@ public class FetchWebDAV extends AbstractWebDAVProcessor {
         } catch (Exception e) {
             getLogger().error("Error building Sardine client", e);
             context.yield();
+        } finally {
+            reportMetrics(session);
         }
     }
 }
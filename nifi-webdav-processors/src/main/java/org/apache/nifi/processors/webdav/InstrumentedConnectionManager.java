@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.config.Registry;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.ConnectionShutdownException;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Connection pool that records how long requests wait to lease a connection, and how long new connections take to resolve and open, including any TLS handshake.
+ *
+ * Bytes sent and received are read from each connection as it is released, so they are the HTTP bytes on the wire, including headers and still compressed bodies.
+ */
+class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager {
+
+    private final WebDAVMetrics metrics;
+
+    InstrumentedConnectionManager(Registry<ConnectionSocketFactory> socketFactoryRegistry, final WebDAVMetrics metrics) {
+        super(socketFactoryRegistry, new DnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                long start = System.nanoTime();
+                try {
+                    return SystemDefaultDnsResolver.INSTANCE.resolve(host);
+                } finally {
+                    metrics.recordDnsResolution(System.nanoTime() - start);
+                }
+            }
+        });
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+        final ConnectionRequest request = super.requestConnection(route, state);
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit tunit) throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, tunit);
+                } finally {
+                    metrics.recordLease(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void connect(HttpClientConnection managedConn, HttpRoute route, int connectTimeout, HttpContext context) throws IOException {
+        long start = System.nanoTime();
+        boolean connected = false;
+        try {
+            super.connect(managedConn, route, connectTimeout, context);
+            connected = true;
+        } finally {
+            metrics.recordConnect(System.nanoTime() - start, connected);
+        }
+    }
+
+    @Override
+    public void releaseConnection(HttpClientConnection managedConn, Object state, long keepalive, TimeUnit tunit) {
+        recordTransfer(managedConn);
+        super.releaseConnection(managedConn, state, keepalive, tunit);
+    }
+
+    private void recordTransfer(HttpClientConnection managedConn) {
+        HttpConnectionMetrics connectionMetrics;
+        try {
+            connectionMetrics = managedConn.getMetrics();
+        } catch (ConnectionShutdownException e) {
+            // already released
+            return;
+        }
+        metrics.add(WebDAVMetrics.Counter.BYTES_RECEIVED, connectionMetrics.getReceivedBytesCount());
+        metrics.add(WebDAVMetrics.Counter.BYTES_SENT, connectionMetrics.getSentBytesCount());
+        connectionMetrics.reset();
+    }
+}
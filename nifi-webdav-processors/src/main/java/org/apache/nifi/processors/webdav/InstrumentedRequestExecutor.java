@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.IOException;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+/**
+ * Times every request sent on a connection until its response headers arrive.
+ *
+ * Authentication challenges are answered inside the client's execution chain and never reach response interceptors, so this is the only point where each 401 and its retry are both visible.
+ */
+class InstrumentedRequestExecutor extends HttpRequestExecutor {
+
+    private final WebDAVMetrics metrics;
+
+    InstrumentedRequestExecutor(WebDAVMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws IOException, HttpException {
+        long start = System.nanoTime();
+        HttpResponse response = super.execute(request, conn, context);
+        long nanos = System.nanoTime() - start;
+
+        Object target = context.getAttribute(HttpCoreContext.HTTP_TARGET_HOST);
+        String host = target instanceof HttpHost ? ((HttpHost) target).getHostName() : "unknown";
+        metrics.recordResponse(request.getRequestLine().getMethod(), host, response.getStatusLine().getStatusCode(), nanos);
+        return response;
+    }
+}
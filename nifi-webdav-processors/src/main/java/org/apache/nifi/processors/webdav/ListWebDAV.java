@@ -79,6 +79,8 @@ public class ListWebDAV extends AbstractWebDAVProcessor {
         _properties.add(USERNAME);
         _properties.add(PASSWORD);
         _properties.add(NTLM_AUTH);
+        _properties.add(ACCEPT_COMPRESSION);
+        _properties.add(SLOW_REQUEST_THRESHOLD);
         
         _properties.add(PROXY_HOST);
         _properties.add(PROXY_PORT);
@@ -112,7 +114,8 @@ public class ListWebDAV extends AbstractWebDAVProcessor {
         try {
             StateMap state = stateManager.getState(Scope.CLUSTER);
 
-            long lastModified = Long.getLong(state.get("lastModified"));
+            String lastModifiedState = state.get("lastModified");
+            long lastModified = lastModifiedState == null ? 0 : Long.parseLong(lastModifiedState);
             long maxModified = 0;
 
             int depth = context.getProperty(DEPTH).asInteger();
@@ -120,7 +123,12 @@ public class ListWebDAV extends AbstractWebDAVProcessor {
             List<DavResource> list;
             LinkedList<FlowFile> files = new LinkedList<FlowFile>();
             try {
+                long started = System.nanoTime();
                 list = sardine.list(url, depth);
+                // the listing is read and parsed once its response headers arrive
+                long parsed = System.nanoTime();
+                long received = metrics.getResponseReceivedAt();
+                metrics.recordListing(list.size(), parsed - (received - started > 0 ? received : started));
 
                 for (final DavResource resource : list) {
                     final long modifiedAt = resource.getModified().getTime();
@@ -165,6 +173,8 @@ public class ListWebDAV extends AbstractWebDAVProcessor {
             }
         } catch (IOException e) {
             getLogger().error("Failed to load state", e);
+        } finally {
+            reportMetrics(session);
         }
 
     }
@@ -18,9 +18,15 @@ package org.apache.nifi.processors.webdav;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.protocol.HTTP;
 import org.apache.nifi.annotation.behavior.DynamicProperty;
 import org.apache.nifi.annotation.behavior.ReadsAttribute;
@@ -28,13 +34,15 @@ import org.apache.nifi.annotation.behavior.ReadsAttributes;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.SeeAlso;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.components.PropertyDescriptor;
 import org.apache.nifi.flowfile.FlowFile;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
 import org.apache.nifi.processor.exception.ProcessException;
 import org.apache.nifi.processor.io.InputStreamCallback;
+import org.apache.nifi.processor.util.StandardValidators;
 
-import com.github.sardine.Sardine;
+import com.github.sardine.impl.SardineImpl;
 
 @Tags({ "webdav", "egress" })
 @CapabilityDescription("Pit Resourcse to a WebDAV location")
@@ -43,6 +51,40 @@ import com.github.sardine.Sardine;
 @DynamicProperty(name = "Custom Property", value = "Attribute Expression Language", supportsExpressionLanguage = true, description = "Addeds custom properties to the WebDAV resource")
 public class PutWebDAV extends AbstractWebDAVProcessor {
 
+    private static final String ENCODING_NONE = "none";
+
+    public static final PropertyDescriptor CONTENT_ENCODING = new PropertyDescriptor.Builder().name("Content Encoding")
+            .description("Compress the content as it is uploaded and send it with this Content-Encoding. Only use this with servers that accept compressed request bodies")
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR).required(true)
+            .allowableValues(ENCODING_NONE, CompressingInputStreams.GZIP, CompressingInputStreams.DEFLATE).defaultValue(ENCODING_NONE).build();
+
+    private final static List<PropertyDescriptor> properties;
+
+    static {
+        final List<PropertyDescriptor> _properties = new ArrayList<>();
+        _properties.add(URL);
+        _properties.add(CONTENT_ENCODING);
+
+        _properties.add(SSL_CONTEXT_SERVICE);
+        _properties.add(USERNAME);
+        _properties.add(PASSWORD);
+        _properties.add(NTLM_AUTH);
+        _properties.add(ACCEPT_COMPRESSION);
+        _properties.add(SLOW_REQUEST_THRESHOLD);
+        
+        _properties.add(PROXY_HOST);
+        _properties.add(PROXY_PORT);
+        _properties.add(HTTP_PROXY_USERNAME);
+        _properties.add(HTTP_PROXY_PASSWORD);
+        _properties.add(NTLM_PROXY_AUTH);
+        properties = Collections.unmodifiableList(_properties);
+    }
+
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        return properties;
+    }
+
     @Override
     public void onTrigger(ProcessContext context, ProcessSession session) throws ProcessException {
         FlowFile flowFile = session.get();
@@ -52,37 +94,54 @@ public class PutWebDAV extends AbstractWebDAVProcessor {
 
         final String url = context.getProperty(URL).evaluateAttributeExpressions(flowFile).getValue();
         addAuth(context, url);
-        final Sardine sardine = buildSardine(context);
+        final SardineImpl sardine = buildSardine(context);
         
         final String contentType = flowFile.getAttribute("mime.type");
         final long contentLength = flowFile.getSize();
+        final String contentEncoding = context.getProperty(CONTENT_ENCODING).getValue();
+        final boolean compress = !ENCODING_NONE.equals(contentEncoding);
 
-        final Map<String, String> headers = new HashMap<String, String>() {
-            private static final long serialVersionUID = 1L;
-            {
-                put(HTTP.CONTENT_TYPE, contentType);
-                put(HTTP.CONTENT_LEN, String.valueOf(contentLength));
-            }
-        };
+        // Content-Length comes from the entity; HttpClient rejects requests that also set it as a header
+        final List<Header> headers = new ArrayList<>();
+        if (contentType != null) {
+            headers.add(new BasicHeader(HTTP.CONTENT_TYPE, contentType));
+        }
+        if (compress) {
+            headers.add(new BasicHeader(HTTP.CONTENT_ENCODING, contentEncoding));
+        }
 
         try {
+            // the content can only be streamed once, so it must not be used up by a request the server answers with an authentication challenge
+            if (context.getProperty(USERNAME).evaluateAttributeExpressions().getValue() != null) {
+                if (context.getProperty(NTLM_AUTH).evaluateAttributeExpressions().asBoolean()) {
+                    // NTLM needs a handshake, so hold the body back until the server is ready for it
+                    headers.add(new BasicHeader(HTTP.EXPECT_DIRECTIVE, HTTP.EXPECT_CONTINUE));
+                } else {
+                    sardine.enablePreemptiveAuthentication(new URL(url));
+                }
+            }
             session.read(flowFile, new InputStreamCallback() {
                 @Override
                 public void process(InputStream in) throws IOException {
                     try {
-                        sardine.put(url, in, headers);
+                        // the compressed length is not known up front, so compressed content is sent chunked
+                        HttpEntity entity = compress ? new InputStreamEntity(CompressingInputStreams.compress(contentEncoding, in), -1) : new InputStreamEntity(in, contentLength);
+                        sardine.put(url, entity, headers);
                     } catch (IOException e) {
                         getLogger().error("Failed to put file", e);
                         throw e;
                     }
                 }
             });
+            metrics.increment(WebDAVMetrics.Counter.FILES_SENT);
             session.transfer(flowFile, RELATIONSHIP_SUCCESS);
         } catch (Exception e) {
             flowFile = session.penalize(flowFile);
             session.transfer(flowFile, RELATIONSHIP_FAILURE);
             // TODO - update the properties on the resource if required and include dynamic properties
             // TODO - handle missing collections
+        } finally {
+            reportMetrics(session);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.entity.DeflateInputStream;
+import org.apache.http.client.entity.InputStreamFactory;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.protocol.ResponseContentEncoding;
+import org.apache.http.config.Lookup;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.brotli.dec.BrotliInputStream;
+
+/**
+ * Decodes compressed response entities as they are streamed.
+ *
+ * Multistatus responses always need decoding to be parsed, but GET bodies can optionally be left compressed, in which case the encoding the server used is recorded for the calling thread so it can
+ * be attached to the FlowFile.
+ */
+class ResponseContentDecoding implements HttpResponseInterceptor {
+
+    /**
+     * Encodings advertised in the Accept-Encoding header, in order of preference
+     */
+    private static final List<String> ENCODINGS = Collections.unmodifiableList(Arrays.asList("br", "gzip", "deflate"));
+
+    /**
+     * Encodings advertised when GET bodies are left compressed, limited to those CompressContent can decompress later in the flow
+     */
+    private static final List<String> FLOWFILE_ENCODINGS = Collections.singletonList("gzip");
+
+    private static final InputStreamFactory GZIP = draining(new InputStreamFactory() {
+        @Override
+        public InputStream create(InputStream in) throws IOException {
+            return new GZIPInputStream(in);
+        }
+    });
+
+    private static final Lookup<InputStreamFactory> DECODERS = RegistryBuilder.<InputStreamFactory> create()
+            .register("br", draining(new InputStreamFactory() {
+                @Override
+                public InputStream create(InputStream in) throws IOException {
+                    return new BrotliInputStream(in);
+                }
+            }))
+            .register("gzip", GZIP)
+            .register("x-gzip", GZIP)
+            .register("deflate", draining(new InputStreamFactory() {
+                @Override
+                public InputStream create(InputStream in) throws IOException {
+                    return new DeflateInputStream(in);
+                }
+            }))
+            .build();
+
+    private final ResponseContentEncoding delegate = new ResponseContentEncoding(DECODERS);
+    private final ThreadLocal<String> contentEncoding = new ThreadLocal<>();
+    private final boolean decodeGet;
+
+    ResponseContentDecoding(boolean decodeGet) {
+        this.decodeGet = decodeGet;
+    }
+
+    @Override
+    public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+        if (!decodeGet && isGet(context)) {
+            Header header = response.getFirstHeader("Content-Encoding");
+            contentEncoding.set(header == null ? null : header.getValue());
+            return;
+        }
+        delegate.process(response, context);
+    }
+
+    /**
+     * @return the encodings to advertise in the Accept-Encoding header
+     */
+    List<String> getAcceptedEncodings() {
+        return decodeGet ? ENCODINGS : FLOWFILE_ENCODINGS;
+    }
+
+    /**
+     * @return the Content-Encoding of the last undecoded GET response on this thread, or null if it was not compressed
+     */
+    String getContentEncoding() {
+        return contentEncoding.get();
+    }
+
+    private static boolean isGet(HttpContext context) {
+        HttpRequest request = HttpClientContext.adapt(context).getRequest();
+        return request != null && "GET".equalsIgnoreCase(request.getRequestLine().getMethod());
+    }
+
+    /**
+     * Decoders stop reading at the end of the compressed data, which can leave the chunked encoding terminator unread, so the client never sees the end of the body and cannot reuse the
+     * connection. This reads the raw stream to its end whenever the decoder reports end of stream.
+     */
+    private static InputStreamFactory draining(final InputStreamFactory factory) {
+        return new InputStreamFactory() {
+            @Override
+            public InputStream create(final InputStream raw) throws IOException {
+                return new FilterInputStream(factory.create(raw)) {
+                    @Override
+                    public int read() throws IOException {
+                        return drainAtEnd(super.read());
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        return drainAtEnd(super.read(b, off, len));
+                    }
+
+                    private int drainAtEnd(int result) throws IOException {
+                        if (result == -1) {
+                            byte[] buffer = new byte[512];
+                            while (raw.read(buffer) != -1) {
+                                // discard anything after the compressed data
+                            }
+                        }
+                        return result;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.nifi.processor.ProcessSession;
+
+/**
+ * Lock-free counters and latency histograms for a WebDAV processor.
+ *
+ * Totals are reported to NiFi counters as deltas at the end of each trigger, and the full picture, including histograms, is available over JMX. The counters describe
+ * traffic that has already happened, so they are adjusted immediately rather than with the session, whose rollback would otherwise lose them.
+ */
+public class WebDAVMetrics implements WebDAVMetricsMXBean {
+
+    public enum Counter {
+        REQUESTS("WebDAV Requests"),
+        UNAUTHORIZED("WebDAV 401 Responses"),
+        ERRORS("WebDAV Error Responses"),
+        RETRIES("WebDAV Retries"),
+        SLOW_REQUESTS("WebDAV Slow Requests"),
+        CONNECTIONS("WebDAV Connections Opened"),
+        CONNECT_FAILURES("WebDAV Connection Failures"),
+        // HTTP bytes on the wire, counted by the connection manager
+        BYTES_RECEIVED("WebDAV Bytes Received"),
+        BYTES_SENT("WebDAV Bytes Sent"),
+        FILES_RECEIVED("WebDAV Files Received"),
+        FILES_SENT("WebDAV Files Sent"),
+        FILES_DELETED("WebDAV Files Deleted"),
+        RESOURCES_LISTED("WebDAV Resources Listed");
+
+        private final String counterName;
+
+        Counter(String counterName) {
+            this.counterName = counterName;
+        }
+
+        public String getCounterName() {
+            return counterName;
+        }
+    }
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final AtomicLongArray totals = new AtomicLongArray(COUNTERS.length);
+    private final AtomicLongArray reported = new AtomicLongArray(COUNTERS.length);
+
+    private final ConcurrentMap<String, Histogram> requestLatency = new ConcurrentHashMap<>();
+    private final Histogram leaseTime = new Histogram();
+    private final Histogram connectTime = new Histogram();
+    private final Histogram dnsTime = new Histogram();
+    private final Histogram listingParseTime = new Histogram();
+
+    private final ThreadLocal<long[]> responseReceivedAt = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private volatile long slowRequestNanos = Long.MAX_VALUE;
+    private final AtomicLong slowestNanos = new AtomicLong();
+    private final AtomicReference<String> slowest = new AtomicReference<>();
+
+    public void setSlowRequestThreshold(long nanos) {
+        slowRequestNanos = nanos;
+    }
+
+    public void increment(Counter counter) {
+        totals.incrementAndGet(counter.ordinal());
+    }
+
+    public void add(Counter counter, long delta) {
+        totals.addAndGet(counter.ordinal(), delta);
+    }
+
+    public long get(Counter counter) {
+        return totals.get(counter.ordinal());
+    }
+
+    /**
+     * Records a response, timed from the start of the request until its headers arrived
+     */
+    public void recordResponse(String method, String host, int status, long nanos) {
+        increment(Counter.REQUESTS);
+        if (status == 401) {
+            increment(Counter.UNAUTHORIZED);
+        } else if (status >= 400) {
+            increment(Counter.ERRORS);
+        }
+
+        String key = method + " " + host;
+        Histogram histogram = requestLatency.get(key);
+        if (histogram == null) {
+            Histogram created = new Histogram();
+            histogram = requestLatency.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        histogram.record(nanos);
+        responseReceivedAt.get()[0] = System.nanoTime();
+
+        if (nanos > slowRequestNanos) {
+            increment(Counter.SLOW_REQUESTS);
+            long current;
+            do {
+                current = slowestNanos.get();
+                if (nanos <= current) {
+                    return;
+                }
+            } while (!slowestNanos.compareAndSet(current, nanos));
+            slowest.set(key + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms to respond (status " + status + ")");
+        }
+    }
+
+    /**
+     * @return System.nanoTime() when the last response on this thread arrived, or 0 if none has
+     */
+    public long getResponseReceivedAt() {
+        return responseReceivedAt.get()[0];
+    }
+
+    public void recordLease(long nanos) {
+        leaseTime.record(nanos);
+    }
+
+    public void recordConnect(long nanos, boolean success) {
+        increment(success ? Counter.CONNECTIONS : Counter.CONNECT_FAILURES);
+        connectTime.record(nanos);
+    }
+
+    public void recordDnsResolution(long nanos) {
+        dnsTime.record(nanos);
+    }
+
+    public void recordListing(int entries, long parseNanos) {
+        add(Counter.RESOURCES_LISTED, entries);
+        listingParseTime.record(parseNanos);
+    }
+
+    /**
+     * Adjusts the session's counters by everything recorded since the last call, from any thread
+     *
+     * @param session
+     */
+    public void adjustCounters(ProcessSession session) {
+        for (Counter counter : COUNTERS) {
+            int i = counter.ordinal();
+            long total = totals.get(i);
+            long delta = total - reported.getAndSet(i, total);
+            if (delta != 0) {
+                session.adjustCounter(counter.getCounterName(), delta, true);
+            }
+        }
+    }
+
+    /**
+     * @return a description of the slowest request over the threshold since the last call, or null if there were none
+     */
+    public String takeSlowestRequest() {
+        if (slowestNanos.getAndSet(0) == 0) {
+            return null;
+        }
+        return slowest.get();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<>();
+        for (Counter counter : COUNTERS) {
+            counters.put(counter.getCounterName(), get(counter));
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Latency> getRequestLatency() {
+        Map<String, Latency> latency = new TreeMap<>();
+        for (Map.Entry<String, Histogram> entry : requestLatency.entrySet()) {
+            latency.put(entry.getKey(), entry.getValue().snapshot());
+        }
+        return latency;
+    }
+
+    @Override
+    public Latency getConnectionLeaseTime() {
+        return leaseTime.snapshot();
+    }
+
+    @Override
+    public Latency getConnectTime() {
+        return connectTime.snapshot();
+    }
+
+    @Override
+    public Latency getDnsResolutionTime() {
+        return dnsTime.snapshot();
+    }
+
+    @Override
+    public Latency getListingParseTime() {
+        return listingParseTime.snapshot();
+    }
+
+    /**
+     * Clears the histograms. Counter totals are kept so the NiFi counters stay consistent.
+     */
+    @Override
+    public void reset() {
+        requestLatency.clear();
+        leaseTime.reset();
+        connectTime.reset();
+        dnsTime.reset();
+        listingParseTime.reset();
+    }
+
+    /**
+     * Histogram with power of two microsecond buckets, so recording is a handful of atomic increments and percentiles are accurate to within a factor of two
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            // bucket i holds durations below 2^i microseconds
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos / 1000));
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            do {
+                max = maxNanos.get();
+            } while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        Latency snapshot() {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            double max = maxNanos.get() / 1000000.0;
+            double mean = total == 0 ? 0 : totalNanos.get() / 1000000.0 / total;
+            return new Latency(total, mean, percentile(counts, total, 0.5, max), percentile(counts, total, 0.95, max), percentile(counts, total, 0.99, max), max);
+        }
+
+        private static double percentile(long[] counts, long total, double quantile, double max) {
+            if (total == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(quantile * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, (1L << i) / 1000.0);
+                }
+            }
+            return max;
+        }
+    }
+
+    /**
+     * Point in time summary of a histogram, in milliseconds
+     */
+    public static final class Latency {
+        private final long count;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p95Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        @ConstructorProperties({ "count", "meanMillis", "p50Millis", "p95Millis", "p99Millis", "maxMillis" })
+        public Latency(long count, double meanMillis, double p50Millis, double p95Millis, double p99Millis, double maxMillis) {
+            this.count = count;
+            this.meanMillis = meanMillis;
+            this.p50Millis = p50Millis;
+            this.p95Millis = p95Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMeanMillis() {
+            return meanMillis;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public double getP95Millis() {
+            return p95Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.util.Map;
+
+import org.apache.nifi.processors.webdav.WebDAVMetrics.Latency;
+
+/**
+ * JMX view of the metrics for a WebDAV processor, registered as org.apache.nifi.processors.webdav:type=&lt;processor type&gt;,id=&lt;processor id&gt;
+ */
+public interface WebDAVMetricsMXBean {
+
+    /**
+     * @return running totals, keyed by the same names used for the NiFi counters
+     */
+    Map<String, Long> getCounters();
+
+    /**
+     * @return time until response headers are received, keyed by "METHOD host"
+     */
+    Map<String, Latency> getRequestLatency();
+
+    Latency getConnectionLeaseTime();
+
+    /**
+     * @return time to open new connections, including DNS resolution and TLS handshakes
+     */
+    Latency getConnectTime();
+
+    Latency getDnsResolutionTime();
+
+    /**
+     * @return time from listing response headers to a parsed listing, including reading the body
+     */
+    Latency getListingParseTime();
+
+    void reset();
+}
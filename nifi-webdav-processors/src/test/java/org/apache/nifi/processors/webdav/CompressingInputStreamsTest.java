@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Test;
+
+public class CompressingInputStreamsTest {
+
+    private static byte[] content() {
+        byte[] content = new byte[256 * 1024];
+        Random random = new Random(42);
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(4));
+        }
+        return content;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGzipRoundTrip() throws IOException {
+        byte[] content = content();
+        byte[] compressed = readFully(CompressingInputStreams.compress(CompressingInputStreams.GZIP, new ByteArrayInputStream(content)));
+        assertArrayEquals(content, readFully(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testDeflateRoundTrip() throws IOException {
+        byte[] content = content();
+        byte[] compressed = readFully(CompressingInputStreams.compress(CompressingInputStreams.DEFLATE, new ByteArrayInputStream(content)));
+        assertArrayEquals(content, readFully(new InflaterInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testEmptyGzip() throws IOException {
+        byte[] compressed = readFully(CompressingInputStreams.gzip(new ByteArrayInputStream(new byte[0])));
+        assertArrayEquals(new byte[0], readFully(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.sardine.impl.io.HttpMethodReleaseInputStream;
+
+public class FetchWebDAVTest {
+
+    private static final byte[] CONTENT = "id,value\n1,one\n2,two\n3,three\n".getBytes(StandardCharsets.UTF_8);
+
+    private WebDAVTestServer server;
+    private TestRunner testRunner;
+
+    @Before
+    public void init() throws IOException {
+        server = new WebDAVTestServer().start();
+        server.addFile("/dav/data.csv", CONTENT, "text/csv", System.currentTimeMillis());
+        server.setCompressResponses(true);
+
+        testRunner = TestRunners.newTestRunner(FetchWebDAV.class);
+        testRunner.setProperty(FetchWebDAV.URL, server.getUrl("/dav/"));
+        testRunner.setProperty("Get All Properties", "false");
+    }
+
+    @After
+    public void shutdown() {
+        server.close();
+    }
+
+    private MockFlowFile fetch() {
+        testRunner.enqueue(new byte[0], Collections.singletonMap("path", server.getUrl("/dav/data.csv")));
+        testRunner.run();
+        testRunner.assertAllFlowFilesTransferred(FetchWebDAV.RELATIONSHIP_SUCCESS, 1);
+        return testRunner.getFlowFilesForRelationship(FetchWebDAV.RELATIONSHIP_SUCCESS).get(0);
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[4096];
+            int len;
+            while ((len = in.read(buffer)) != -1) {
+                out.write(buffer, 0, len);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testDecompressesContent() throws IOException {
+        MockFlowFile flowFile = fetch();
+        flowFile.assertContentEquals(CONTENT);
+        assertNull(flowFile.getAttribute("content.encoding"));
+        assertEquals(1, server.getCompressedResponseCount());
+    }
+
+    @Test
+    public void testKeepsCompressedContent() throws IOException {
+        testRunner.setProperty(FetchWebDAV.DECOMPRESS_CONTENT, "false");
+        MockFlowFile flowFile = fetch();
+        flowFile.assertAttributeEquals("content.encoding", "gzip");
+        assertArrayEquals(CONTENT, gunzip(testRunner.getContentAsByteArray(flowFile)));
+    }
+
+    @Test
+    public void testWithoutCompression() throws IOException {
+        testRunner.setProperty(FetchWebDAV.ACCEPT_COMPRESSION, "false");
+        MockFlowFile flowFile = fetch();
+        flowFile.assertContentEquals(CONTENT);
+        assertEquals(0, server.getCompressedResponseCount());
+    }
+
+    @Test
+    public void testCountsCompressedBytes() throws IOException {
+        byte[] content = new byte[64 * 1024];
+        Arrays.fill(content, (byte) 'a');
+        server.addFile("/dav/data.csv", content, "text/csv", System.currentTimeMillis());
+
+        fetch().assertContentEquals(content);
+        long received = ((FetchWebDAV) testRunner.getProcessor()).getMetrics().get(WebDAVMetrics.Counter.BYTES_RECEIVED);
+        assertTrue(received > 0);
+        assertTrue(received < content.length);
+    }
+
+    @Test
+    public void testCompressedFetchReusesConnection() {
+        // keep the processor scheduled between runs, so its connection pool survives
+        for (int i = 0; i < 2; i++) {
+            testRunner.enqueue(new byte[0], Collections.singletonMap("path", server.getUrl("/dav/data.csv")));
+            testRunner.run(1, false, i == 0);
+        }
+        testRunner.assertAllFlowFilesTransferred(FetchWebDAV.RELATIONSHIP_SUCCESS, 2);
+        assertEquals(2, server.getCompressedResponseCount());
+        assertEquals(1, ((FetchWebDAV) testRunner.getProcessor()).getMetrics().get(WebDAVMetrics.Counter.CONNECTIONS));
+    }
+
+    @Test
+    public void testFetchDoesNotAbortConnection() throws IOException {
+        final AtomicInteger warnings = new AtomicInteger();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Logger logger = Logger.getLogger(HttpMethodReleaseInputStream.class.getName());
+        logger.addHandler(handler);
+        try {
+            fetch().assertContentEquals(CONTENT);
+            testRunner.clearTransferState();
+            testRunner.setProperty(FetchWebDAV.ACCEPT_COMPRESSION, "false");
+            fetch().assertContentEquals(CONTENT);
+        } finally {
+            logger.removeHandler(handler);
+        }
+        assertEquals(0, warnings.get());
+    }
+}
@@ -16,28 +16,139 @@
  */
 package org.apache.nifi.processors.webdav;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.nifi.util.MockFlowFile;
 import org.apache.nifi.util.TestRunner;
 import org.apache.nifi.util.TestRunners;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
-
 public class ListWebDAVTest {
 
+    private static final long MODIFIED = 1460000000000L;
+
+    private WebDAVTestServer server;
     private TestRunner testRunner;
 
     @Before
-    public void init() {
+    public void init() throws IOException {
         // start a dummy webdav server
-        
-        
+        server = new WebDAVTestServer().start();
+        server.addFile("/dav/a.txt", "a".getBytes(StandardCharsets.UTF_8), "text/plain", MODIFIED);
+        server.addFile("/dav/b.txt", "b".getBytes(StandardCharsets.UTF_8), "text/plain", MODIFIED + 1000);
+
         testRunner = TestRunners.newTestRunner(ListWebDAV.class);
-        testRunner.assertAllFlowFilesTransferred(ListWebDAV.RELATIONSHIP_SUCCESS);
+        testRunner.setProperty(ListWebDAV.URL, server.getUrl("/dav/"));
+    }
+
+    @After
+    public void shutdown() {
+        server.close();
+    }
+
+    private Map<String, MockFlowFile> listed() {
+        Map<String, MockFlowFile> listed = new HashMap<>();
+        for (MockFlowFile flowFile : testRunner.getFlowFilesForRelationship(ListWebDAV.RELATIONSHIP_SUCCESS)) {
+            listed.put(flowFile.getAttribute("filename"), flowFile);
+        }
+        return listed;
     }
 
     @Test
     public void testProcessor() {
+        testRunner.run();
 
+        Map<String, MockFlowFile> listed = listed();
+        assertNotNull(listed.get("b.txt"));
+        MockFlowFile flowFile = listed.get("a.txt");
+        assertNotNull(flowFile);
+        flowFile.assertAttributeEquals("path", "/dav/a.txt");
+        flowFile.assertAttributeEquals("mime.type", "text/plain");
+        flowFile.assertAttributeEquals("date.modified", String.valueOf(MODIFIED));
     }
 
+    @Test
+    public void testOnlyListsModifiedResources() {
+        testRunner.run();
+        testRunner.clearTransferState();
+
+        testRunner.run();
+        testRunner.assertTransferCount(ListWebDAV.RELATIONSHIP_SUCCESS, 0);
+
+        server.addFile("/dav/c.txt", "c".getBytes(StandardCharsets.UTF_8), "text/plain", System.currentTimeMillis() + 60000);
+        testRunner.run();
+        testRunner.assertTransferCount(ListWebDAV.RELATIONSHIP_SUCCESS, 1);
+        testRunner.getFlowFilesForRelationship(ListWebDAV.RELATIONSHIP_SUCCESS).get(0).assertAttributeEquals("filename", "c.txt");
+    }
+
+    @Test
+    public void testAuthentication() {
+        server.setCredentials("user", "secret");
+        testRunner.setProperty(ListWebDAV.USERNAME, "user");
+        testRunner.setProperty(ListWebDAV.PASSWORD, "secret");
+
+        testRunner.run();
+
+        assertNotNull(listed().get("a.txt"));
+        assertTrue(server.getUnauthorizedCount() > 0);
+    }
+
+    @Test
+    public void testServerError() {
+        server.failNextRequests(1, 503);
+        testRunner.run();
+        testRunner.assertTransferCount(ListWebDAV.RELATIONSHIP_SUCCESS, 0);
+
+        testRunner.run();
+        assertNotNull(listed().get("a.txt"));
+    }
+
+    @Test
+    public void testSlowServer() {
+        server.setLatency(200);
+        server.setBandwidth(16 * 1024);
+        testRunner.run();
+        assertNotNull(listed().get("a.txt"));
+    }
+
+    @Test
+    public void testCompressedListing() {
+        server.setCompressResponses(true);
+        testRunner.run();
+        assertNotNull(listed().get("a.txt"));
+        assertEquals(1, server.getCompressedResponseCount());
+
+        testRunner.clearTransferState();
+        testRunner.setProperty(ListWebDAV.ACCEPT_COMPRESSION, "false");
+        server.addFile("/dav/c.txt", "c".getBytes(StandardCharsets.UTF_8), "text/plain", System.currentTimeMillis() + 60000);
+        testRunner.run();
+        assertNotNull(listed().get("c.txt"));
+        assertEquals(1, server.getCompressedResponseCount());
+    }
+
+    @Test
+    public void testMetrics() {
+        server.setCredentials("user", "secret");
+        testRunner.setProperty(ListWebDAV.USERNAME, "user");
+        testRunner.setProperty(ListWebDAV.PASSWORD, "secret");
+        testRunner.run();
+
+        WebDAVMetrics metrics = ((ListWebDAV) testRunner.getProcessor()).getMetrics();
+        assertEquals(3, metrics.get(WebDAVMetrics.Counter.RESOURCES_LISTED));
+        // the challenge and the authenticated retry are both counted
+        assertTrue(server.getUnauthorizedCount() > 0);
+        assertEquals(server.getUnauthorizedCount(), metrics.get(WebDAVMetrics.Counter.UNAUTHORIZED));
+        assertEquals(server.getRequestCount("PROPFIND"), metrics.getRequestLatency().get("PROPFIND 127.0.0.1").getCount());
+        assertEquals(1, metrics.getListingParseTime().getCount());
+        assertTrue(metrics.get(WebDAVMetrics.Counter.CONNECTIONS) > 0);
+    }
 }
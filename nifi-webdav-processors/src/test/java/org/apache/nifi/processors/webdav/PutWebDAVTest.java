@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PutWebDAVTest {
+
+    private static final byte[] CONTENT = "id,value\n1,one\n2,two\n3,three\n".getBytes(StandardCharsets.UTF_8);
+
+    private WebDAVTestServer server;
+    private TestRunner testRunner;
+
+    @Before
+    public void init() throws IOException {
+        server = new WebDAVTestServer().start();
+        server.addCollection("/dav");
+
+        testRunner = TestRunners.newTestRunner(PutWebDAV.class);
+        testRunner.setProperty(PutWebDAV.URL, server.getUrl("/dav/data.csv"));
+    }
+
+    @After
+    public void shutdown() {
+        server.close();
+    }
+
+    private void put() {
+        testRunner.enqueue(CONTENT, Collections.singletonMap("mime.type", "text/csv"));
+        testRunner.run();
+        testRunner.assertAllFlowFilesTransferred(PutWebDAV.RELATIONSHIP_SUCCESS, 1);
+        WebDAVTestServer.Resource resource = server.getResource("/dav/data.csv");
+        assertArrayEquals(CONTENT, resource.getContent());
+        assertEquals("text/csv", resource.getContentType());
+    }
+
+    @Test
+    public void testPut() {
+        put();
+        assertEquals(0, server.getCompressedRequestCount());
+        // the body plus request headers
+        assertTrue(((PutWebDAV) testRunner.getProcessor()).getMetrics().get(WebDAVMetrics.Counter.BYTES_SENT) > CONTENT.length);
+    }
+
+    @Test
+    public void testPutGzip() {
+        testRunner.setProperty(PutWebDAV.CONTENT_ENCODING, "gzip");
+        put();
+        assertEquals(1, server.getCompressedRequestCount());
+    }
+
+    @Test
+    public void testPutDeflate() {
+        testRunner.setProperty(PutWebDAV.CONTENT_ENCODING, "deflate");
+        put();
+        assertEquals(1, server.getCompressedRequestCount());
+    }
+
+    @Test
+    public void testPutAuthenticated() {
+        server.setCredentials("user", "secret");
+        testRunner.setProperty(PutWebDAV.USERNAME, "user");
+        testRunner.setProperty(PutWebDAV.PASSWORD, "secret");
+        put();
+        assertEquals(0, server.getUnauthorizedCount());
+    }
+
+    @Test
+    public void testPutGzipAuthenticated() {
+        server.setCredentials("user", "secret");
+        testRunner.setProperty(PutWebDAV.USERNAME, "user");
+        testRunner.setProperty(PutWebDAV.PASSWORD, "secret");
+        testRunner.setProperty(PutWebDAV.CONTENT_ENCODING, "gzip");
+        put();
+        assertEquals(0, server.getUnauthorizedCount());
+        assertEquals(1, server.getCompressedRequestCount());
+    }
+
+    @Test
+    public void testPutGzipReusesConnection() {
+        testRunner.setProperty(PutWebDAV.CONTENT_ENCODING, "gzip");
+        // keep the processor scheduled between runs, so its connection pool survives
+        for (int i = 0; i < 2; i++) {
+            testRunner.enqueue(CONTENT);
+            testRunner.run(1, false, i == 0);
+        }
+        testRunner.assertAllFlowFilesTransferred(PutWebDAV.RELATIONSHIP_SUCCESS, 2);
+        assertEquals(2, server.getCompressedRequestCount());
+        assertEquals(1, ((PutWebDAV) testRunner.getProcessor()).getMetrics().get(WebDAVMetrics.Counter.CONNECTIONS));
+    }
+}
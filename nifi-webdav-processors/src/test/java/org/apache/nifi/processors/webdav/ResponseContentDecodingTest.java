@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.Test;
+
+public class ResponseContentDecodingTest {
+
+    private static final byte[] CONTENT = "<multistatus/>".getBytes(StandardCharsets.UTF_8);
+
+    private static HttpResponse gzipResponse() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(CONTENT);
+        }
+        HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+        // the connection sets the entity's encoding from the Content-Encoding header
+        ByteArrayEntity entity = new ByteArrayEntity(compressed.toByteArray());
+        entity.setContentEncoding("gzip");
+        response.setEntity(entity);
+        response.setHeader("Content-Encoding", "gzip");
+        return response;
+    }
+
+    private static HttpClientContext context(String method) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setAttribute(HttpCoreContext.HTTP_REQUEST, new BasicHttpRequest(method, "/dav/data.csv"));
+        return context;
+    }
+
+    @Test
+    public void testDecodesResponses() throws IOException, HttpException {
+        ResponseContentDecoding decoding = new ResponseContentDecoding(true);
+        HttpResponse response = gzipResponse();
+        decoding.process(response, context("GET"));
+        assertArrayEquals(CONTENT, EntityUtils.toByteArray(response.getEntity()));
+        assertNull(decoding.getContentEncoding());
+    }
+
+    @Test
+    public void testLeavesGetResponsesCompressed() throws IOException, HttpException {
+        ResponseContentDecoding decoding = new ResponseContentDecoding(false);
+        HttpResponse response = gzipResponse();
+        decoding.process(response, context("GET"));
+        assertEquals("gzip", decoding.getContentEncoding());
+        assertEquals(0x1f, EntityUtils.toByteArray(response.getEntity())[0]);
+    }
+
+    @Test
+    public void testAlwaysDecodesListings() throws IOException, HttpException {
+        ResponseContentDecoding decoding = new ResponseContentDecoding(false);
+        HttpResponse response = gzipResponse();
+        decoding.process(response, context("PROPFIND"));
+        assertArrayEquals(CONTENT, EntityUtils.toByteArray(response.getEntity()));
+    }
+
+    @Test
+    public void testAcceptsOnlyGzipWhenLeavingGetResponsesCompressed() {
+        assertEquals(Arrays.asList("br", "gzip", "deflate"), new ResponseContentDecoding(true).getAcceptedEncodings());
+        assertEquals(Collections.singletonList("gzip"), new ResponseContentDecoding(false).getAcceptedEncodings());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.nifi.processor.Processor;
+import org.apache.nifi.processors.webdav.WebDAVMetrics.Latency;
+import org.apache.nifi.util.MockProcessSession;
+import org.apache.nifi.util.SharedSessionState;
+import org.junit.Test;
+
+public class WebDAVMetricsTest {
+
+    @Test
+    public void testLatencyPercentiles() {
+        WebDAVMetrics metrics = new WebDAVMetrics();
+        for (int i = 1; i <= 100; i++) {
+            metrics.recordResponse("GET", "example.com", 200, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        Latency latency = metrics.getRequestLatency().get("GET example.com");
+        assertEquals(100, latency.getCount());
+        assertEquals(50.5, latency.getMeanMillis(), 0.001);
+        assertEquals(100.0, latency.getMaxMillis(), 0.001);
+        // buckets are powers of two, so percentiles are upper bounds within a factor of two
+        assertTrue(latency.getP50Millis() >= 50 && latency.getP50Millis() < 100);
+        assertTrue(latency.getP99Millis() >= 99 && latency.getP99Millis() <= 100);
+    }
+
+    @Test
+    public void testCounters() {
+        WebDAVMetrics metrics = new WebDAVMetrics();
+        metrics.recordResponse("PROPFIND", "example.com", 401, 1000);
+        metrics.recordResponse("PROPFIND", "example.com", 207, 1000);
+        metrics.recordResponse("GET", "example.com", 404, 1000);
+
+        assertEquals(3, metrics.get(WebDAVMetrics.Counter.REQUESTS));
+        assertEquals(1, metrics.get(WebDAVMetrics.Counter.UNAUTHORIZED));
+        assertEquals(1, metrics.get(WebDAVMetrics.Counter.ERRORS));
+        assertEquals(Long.valueOf(3), metrics.getCounters().get("WebDAV Requests"));
+
+        metrics.recordConnect(1000, true);
+        metrics.recordConnect(1000, false);
+        assertEquals(1, metrics.get(WebDAVMetrics.Counter.CONNECTIONS));
+        assertEquals(1, metrics.get(WebDAVMetrics.Counter.CONNECT_FAILURES));
+        assertEquals(2, metrics.getConnectTime().getCount());
+    }
+
+    @Test
+    public void testCountersSurviveRollback() {
+        Processor processor = new ListWebDAV();
+        SharedSessionState state = new SharedSessionState(processor, new AtomicLong());
+        WebDAVMetrics metrics = new WebDAVMetrics();
+        metrics.recordResponse("PROPFIND", "example.com", 207, 1000);
+
+        MockProcessSession session = new MockProcessSession(state, processor);
+        metrics.adjustCounters(session);
+        session.rollback();
+        assertEquals(Long.valueOf(1), state.getCounterValue("WebDAV Requests"));
+
+        // only the delta since the last report is added
+        metrics.recordResponse("PROPFIND", "example.com", 207, 1000);
+        metrics.adjustCounters(new MockProcessSession(state, processor));
+        assertEquals(Long.valueOf(2), state.getCounterValue("WebDAV Requests"));
+    }
+
+    @Test
+    public void testSlowestRequest() {
+        WebDAVMetrics metrics = new WebDAVMetrics();
+        metrics.setSlowRequestThreshold(TimeUnit.SECONDS.toNanos(1));
+        metrics.recordResponse("GET", "example.com", 200, TimeUnit.MILLISECONDS.toNanos(10));
+        assertNull(metrics.takeSlowestRequest());
+
+        metrics.recordResponse("GET", "example.com", 200, TimeUnit.SECONDS.toNanos(2));
+        metrics.recordResponse("PUT", "example.com", 201, TimeUnit.SECONDS.toNanos(5));
+        assertEquals(2, metrics.get(WebDAVMetrics.Counter.SLOW_REQUESTS));
+        assertEquals("PUT example.com took 5000 ms to respond (status 201)", metrics.takeSlowestRequest());
+        assertNull(metrics.takeSlowestRequest());
+    }
+}
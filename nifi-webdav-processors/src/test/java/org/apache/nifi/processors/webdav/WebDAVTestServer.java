@@ -0,0 +1,566 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.nifi.processors.webdav;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.codec.binary.Base64;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * In-process, in-memory WebDAV server for tests and benchmarks.
+ *
+ * Supports PROPFIND, GET, HEAD, PUT, DELETE and MKCOL with optional Basic authentication, and can inject latency, errors and bandwidth limits to approximate a remote server.
+ */
+public class WebDAVTestServer implements Closeable {
+
+    static {
+        // read once by the JDK server; without it small responses on kept-alive connections wait out delayed ACKs, which dwarfs loopback latency
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final ConcurrentNavigableMap<String, Resource> resources = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicInteger unauthorizedCount = new AtomicInteger();
+    private final AtomicInteger compressedRequestCount = new AtomicInteger();
+    private final AtomicInteger compressedResponseCount = new AtomicInteger();
+    private final AtomicInteger failuresRemaining = new AtomicInteger();
+    private final Random random = new Random();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private volatile String authorization;
+    private volatile long latencyMillis;
+    private volatile long bytesPerSecond;
+    private volatile int failureStatus = 500;
+    private volatile double errorRate;
+    private volatile boolean compressResponses;
+
+    public WebDAVTestServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    WebDAVTestServer.this.handle(exchange);
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        addCollection("/");
+    }
+
+    public WebDAVTestServer start() {
+        server.start();
+        return this;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public String getUrl(String path) {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + path;
+    }
+
+    public void addCollection(String path) {
+        long now = System.currentTimeMillis();
+        addResource(new Resource(path, null, null, now, now));
+    }
+
+    public void addFile(String path, byte[] content, String contentType, long modified) {
+        addResource(new Resource(path, content, contentType, modified, modified));
+    }
+
+    public void addResource(Resource resource) {
+        String parent = parent(resource.path);
+        if (parent != null && !resources.containsKey(parent)) {
+            addCollection(parent);
+        }
+        resources.put(resource.path, resource);
+    }
+
+    public Resource getResource(String path) {
+        return resources.get(normalize(path));
+    }
+
+    /**
+     * Require Basic authentication for every request
+     */
+    public void setCredentials(String username, String password) {
+        authorization = username == null ? null : "Basic " + Base64.encodeBase64String((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Delay every request, including authentication challenges, by a fixed amount
+     */
+    public void setLatency(long millis) {
+        latencyMillis = millis;
+    }
+
+    /**
+     * Limit the rate response bodies are written at, 0 for unlimited
+     */
+    public void setBandwidth(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Fail the next count requests with the given status
+     */
+    public void failNextRequests(int count, int status) {
+        failureStatus = status;
+        failuresRemaining.set(count);
+    }
+
+    /**
+     * Fail a random fraction of requests with the given status
+     */
+    public void setErrorRate(double rate, int status) {
+        failureStatus = status;
+        errorRate = rate;
+    }
+
+    /**
+     * gzip response bodies for clients that accept it
+     */
+    public void setCompressResponses(boolean compressResponses) {
+        this.compressResponses = compressResponses;
+    }
+
+    public int getRequestCount(String method) {
+        AtomicInteger count = requestCounts.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    public int getUnauthorizedCount() {
+        return unauthorizedCount.get();
+    }
+
+    /**
+     * @return number of request bodies received with a Content-Encoding
+     */
+    public int getCompressedRequestCount() {
+        return compressedRequestCount.get();
+    }
+
+    /**
+     * @return number of response bodies sent gzipped
+     */
+    public int getCompressedResponseCount() {
+        return compressedResponseCount.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+        AtomicInteger count = requestCounts.putIfAbsent(method, new AtomicInteger(1));
+        if (count != null) {
+            count.incrementAndGet();
+        }
+
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        String expected = authorization;
+        if (expected != null && !expected.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            unauthorizedCount.incrementAndGet();
+            // the client retries with credentials, so finish this exchange cleanly and have it reconnect
+            drain(exchange);
+            exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"webdav\"");
+            exchange.getResponseHeaders().set("Connection", "close");
+            exchange.sendResponseHeaders(401, -1);
+            return;
+        }
+
+        if (takeFailure() || (errorRate > 0 && random.nextDouble() < errorRate)) {
+            drain(exchange);
+            exchange.sendResponseHeaders(failureStatus, -1);
+            return;
+        }
+
+        String path = normalize(exchange.getRequestURI().getPath());
+        switch (method) {
+        case "PROPFIND":
+            propfind(exchange, path);
+            break;
+        case "GET":
+        case "HEAD":
+            get(exchange, path, "HEAD".equals(method));
+            break;
+        case "PUT":
+            put(exchange, path);
+            break;
+        case "DELETE":
+            delete(exchange, path);
+            break;
+        case "MKCOL":
+            mkcol(exchange, path);
+            break;
+        default:
+            exchange.sendResponseHeaders(405, -1);
+        }
+    }
+
+    private static void drain(HttpExchange exchange) throws IOException {
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[8192];
+        while (in.read(buffer) != -1) {
+            // discard
+        }
+    }
+
+    private boolean takeFailure() {
+        int remaining;
+        do {
+            remaining = failuresRemaining.get();
+            if (remaining <= 0) {
+                return false;
+            }
+        } while (!failuresRemaining.compareAndSet(remaining, remaining - 1));
+        return true;
+    }
+
+    private void propfind(HttpExchange exchange, String path) throws IOException {
+        Resource resource = resources.get(path);
+        if (resource == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        String depth = exchange.getRequestHeaders().getFirst("Depth");
+        Collection<Resource> found;
+        if (!resource.isCollection() || "0".equals(depth)) {
+            found = Collections.singletonList(resource);
+        } else {
+            found = new ArrayList<>();
+            found.add(resource);
+            for (Resource descendant : descendants(path).values()) {
+                if (!"1".equals(depth) || path.equals(parent(descendant.path))) {
+                    found.add(descendant);
+                }
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/xml; charset=utf-8");
+        try (OutputStream out = responseBody(exchange, 207)) {
+            writeMultistatus(out, found);
+        }
+    }
+
+    private void get(HttpExchange exchange, String path, boolean head) throws IOException {
+        Resource resource = resources.get(path);
+        if (resource == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        if (resource.isCollection()) {
+            exchange.sendResponseHeaders(403, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", resource.contentType);
+        exchange.getResponseHeaders().set("ETag", resource.etag);
+        exchange.getResponseHeaders().set("Last-Modified", rfc1123().format(new Date(resource.modified)));
+        if (head) {
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(resource.content.length));
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        try (OutputStream out = responseBody(exchange, 200)) {
+            out.write(resource.content);
+        }
+    }
+
+    private void put(HttpExchange exchange, String path) throws IOException {
+        Resource existing = resources.get(path);
+        if (existing != null && existing.isCollection()) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String parent = parent(path);
+        if (parent != null && !resources.containsKey(parent)) {
+            exchange.sendResponseHeaders(409, -1);
+            return;
+        }
+        InputStream in = exchange.getRequestBody();
+        String contentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            compressedRequestCount.incrementAndGet();
+            in = new GZIPInputStream(in);
+        } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            compressedRequestCount.incrementAndGet();
+            in = new InflaterInputStream(in);
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            content.write(buffer, 0, len);
+        }
+        // decoders stop at the end of the compressed data, which can leave the chunked terminator unread
+        drain(exchange);
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        long now = System.currentTimeMillis();
+        resources.put(path, new Resource(path, content.toByteArray(), contentType == null ? "application/octet-stream" : contentType, existing == null ? now : existing.created, now));
+        exchange.sendResponseHeaders(existing == null ? 201 : 204, -1);
+    }
+
+    private void delete(HttpExchange exchange, String path) throws IOException {
+        if (resources.remove(path) == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        descendants(path).clear();
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void mkcol(HttpExchange exchange, String path) throws IOException {
+        if (resources.containsKey(path)) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        String parent = parent(path);
+        if (parent != null && !resources.containsKey(parent)) {
+            exchange.sendResponseHeaders(409, -1);
+            return;
+        }
+        addCollection(path);
+        exchange.sendResponseHeaders(201, -1);
+    }
+
+    private OutputStream responseBody(HttpExchange exchange, int status) throws IOException {
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = compressResponses && acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+        if (gzip) {
+            compressedResponseCount.incrementAndGet();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream out = exchange.getResponseBody();
+        if (bytesPerSecond > 0) {
+            out = new ThrottledOutputStream(out, bytesPerSecond);
+        }
+        return gzip ? new GZIPOutputStream(out, 8192) : new BufferedOutputStream(out, 8192);
+    }
+
+    private ConcurrentNavigableMap<String, Resource> descendants(String path) {
+        String prefix = "/".equals(path) ? path : path + "/";
+        return resources.subMap(prefix, false, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static String normalize(String path) {
+        if (path == null || path.isEmpty()) {
+            return "/";
+        }
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private static String parent(String path) {
+        if ("/".equals(path)) {
+            return null;
+        }
+        int index = path.lastIndexOf('/');
+        return index <= 0 ? "/" : path.substring(0, index);
+    }
+
+    private static SimpleDateFormat rfc1123() {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    private static SimpleDateFormat iso8601() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return format;
+    }
+
+    /**
+     * Writes a PROPFIND multistatus document describing the given resources
+     *
+     * @param out
+     * @param resources
+     * @throws IOException
+     */
+    public static void writeMultistatus(OutputStream out, Iterable<Resource> resources) throws IOException {
+        SimpleDateFormat rfc1123 = rfc1123();
+        SimpleDateFormat iso8601 = iso8601();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<D:multistatus xmlns:D=\"DAV:\">\n");
+        for (Resource resource : resources) {
+            writer.write("<D:response><D:href>");
+            writer.write(href(resource));
+            writer.write("</D:href><D:propstat><D:prop>");
+            writer.write("<D:creationdate>");
+            writer.write(iso8601.format(new Date(resource.created)));
+            writer.write("</D:creationdate><D:getlastmodified>");
+            writer.write(rfc1123.format(new Date(resource.modified)));
+            writer.write("</D:getlastmodified>");
+            if (resource.isCollection()) {
+                writer.write("<D:resourcetype><D:collection/></D:resourcetype>");
+            } else {
+                writer.write("<D:resourcetype/><D:getcontentlength>");
+                writer.write(String.valueOf(resource.content.length));
+                writer.write("</D:getcontentlength><D:getcontenttype>");
+                writer.write(escape(resource.contentType));
+                writer.write("</D:getcontenttype><D:getetag>");
+                writer.write(escape(resource.etag));
+                writer.write("</D:getetag>");
+            }
+            writer.write("</D:prop><D:status>HTTP/1.1 200 OK</D:status></D:propstat></D:response>\n");
+        }
+        writer.write("</D:multistatus>\n");
+        writer.flush();
+    }
+
+    private static String href(Resource resource) {
+        String path = resource.isCollection() && !"/".equals(resource.path) ? resource.path + "/" : resource.path;
+        try {
+            return escape(new URI(null, null, path, null).toASCIIString());
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException("Invalid resource path " + path, e);
+        }
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+
+    /**
+     * A file, or a collection if it has no content
+     */
+    public static final class Resource {
+        private final String path;
+        private final byte[] content;
+        private final String contentType;
+        private final long created;
+        private final long modified;
+        private final String etag;
+
+        public Resource(String path, byte[] content, String contentType, long created, long modified) {
+            this.path = normalize(path);
+            this.content = content;
+            this.contentType = contentType;
+            this.created = created;
+            this.modified = modified;
+            this.etag = "\"" + Long.toHexString(modified) + "-" + (content == null ? 0 : content.length) + "\"";
+        }
+
+        public boolean isCollection() {
+            return content == null;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+    }
+
+    private static final class ThrottledOutputStream extends FilterOutputStream {
+        private static final int CHUNK = 1024;
+
+        private final long bytesPerSecond;
+        private final long start = System.nanoTime();
+        private long written;
+
+        ThrottledOutputStream(OutputStream out, long bytesPerSecond) {
+            super(out);
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            throttle(1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int chunk = Math.min(len, CHUNK);
+                out.write(b, off, chunk);
+                throttle(chunk);
+                off += chunk;
+                len -= chunk;
+            }
+        }
+
+        private void throttle(int bytes) throws IOException {
+            written += bytes;
+            long aheadNanos = written * 1000000000L / bytesPerSecond - (System.nanoTime() - start);
+            if (aheadNanos > 0) {
+                try {
+                    Thread.sleep(aheadNanos / 1000000L, (int) (aheadNanos % 1000000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+    }
+}